@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import org.microg.address.Formatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Coalesces addresses from concurrent callers into batches that are formatted by a small set of
+ * worker threads sharing a single {@link Formatter}.
+ * <p>
+ * The addresses of a batch are still formatted one by one, so batching does not make formatting
+ * itself cheaper. It bounds the number of threads formatting at the same time to the number of
+ * workers, independent of the number of connections, and lets a worker pick up a burst of queued
+ * addresses with a single wake-up.
+ */
+public class BatchingFormatter {
+    private final Formatter formatter;
+    private final ServerStats stats;
+    private final int maxBatchSize;
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<Job>();
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    public BatchingFormatter(Formatter formatter, ServerStats stats, int workerCount, int maxBatchSize) {
+        if (workerCount < 1) throw new IllegalArgumentException("workerCount < 1");
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize < 1");
+        this.formatter = formatter;
+        this.stats = stats;
+        this.maxBatchSize = maxBatchSize;
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(new Worker(), "address-formatter-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public String format(Map<String, String> components) throws InterruptedException {
+        return formatAll(Collections.singletonList(components)).get(0);
+    }
+
+    /**
+     * Formats all addresses, blocking until every one of them has been handled by a worker.
+     *
+     * @return the formatted addresses in input order, {@code null} for addresses that failed to format
+     * @throws IllegalStateException if this formatter is shut down before all addresses are handled
+     */
+    public List<String> formatAll(List<Map<String, String>> components) throws InterruptedException {
+        if (!running) throw new IllegalStateException("BatchingFormatter has been shut down");
+        Ticket ticket = new Ticket(components.size());
+        for (int i = 0; i < components.size(); i++) {
+            queue.add(new Job(ticket, i, components.get(i)));
+        }
+        // Shut down while enqueueing, nobody is going to take the jobs anymore
+        if (!running) cancelPending();
+        ticket.latch.await();
+        if (ticket.cancelled) throw new IllegalStateException("BatchingFormatter has been shut down");
+        return Arrays.asList(ticket.results);
+    }
+
+    /**
+     * Stops the workers. Callers still waiting for queued addresses get an
+     * {@link IllegalStateException}.
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        List<Job> pending = new ArrayList<Job>();
+        queue.drainTo(pending);
+        for (Job job : pending) {
+            job.ticket.cancel();
+        }
+    }
+
+    private class Worker implements Runnable {
+        @Override
+        public void run() {
+            List<Job> batch = new ArrayList<Job>(maxBatchSize);
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(batch, maxBatchSize - 1);
+                String[] results = new String[batch.size()];
+                int failed = 0;
+                for (int i = 0; i < results.length; i++) {
+                    try {
+                        results[i] = formatter.formatAddress(batch.get(i).components);
+                    } catch (Throwable e) {
+                        // Also errors like StackOverflowError from replacement rules, the
+                        // worker has to survive and the ticket must be completed
+                        failed++;
+                    }
+                }
+                // Record before completing, so callers see their addresses in the stats
+                stats.recordBatch(results.length, failed);
+                for (int i = 0; i < results.length; i++) {
+                    batch.get(i).ticket.complete(batch.get(i).index, results[i]);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private static class Ticket {
+        private final String[] results;
+        private final CountDownLatch latch;
+        private volatile boolean cancelled;
+
+        private Ticket(int size) {
+            this.results = new String[size];
+            this.latch = new CountDownLatch(size);
+        }
+
+        private void complete(int index, String result) {
+            results[index] = result;
+            latch.countDown();
+        }
+
+        private void cancel() {
+            cancelled = true;
+            while (latch.getCount() > 0) {
+                latch.countDown();
+            }
+        }
+    }
+
+    private static class Job {
+        private final Ticket ticket;
+        private final int index;
+        private final Map<String, String> components;
+
+        private Job(Ticket ticket, int index, Map<String, String> components) {
+            this.ticket = ticket;
+            this.index = index;
+            this.components = components;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import org.microg.address.Formatter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point, also used for the native image.
+ * <p>
+ * Reads one JSON component map or array of component maps per line from stdin and writes one
+ * line with the JSON formatted address or array of addresses to stdout, in the same format as
+ * {@link FormatterServer}. Blank, invalid or unformattable lines get a {@code {"error":"..."}}
+ * line, so output line n always belongs to input line n. {@code serve [options]} starts a
+ * {@link FormatterServer} instead.
+ */
+public class FormatterCli {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("serve")) {
+            FormatterServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        Formatter formatter;
+        if (args.length == 0) {
+            formatter = Formatter.getDefault();
+        } else if (args.length == 2 && args[0].equals("--path")) {
+            formatter = new Formatter(args[1]);
+        } else {
+            System.err.println("Usage: FormatterCli [--path CONF] < components.jsonl");
+            System.err.println("       FormatterCli serve [server options]");
+            System.exit(1);
+            return;
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"));
+        run(formatter, new BufferedReader(new InputStreamReader(System.in, "UTF-8")), writer);
+        writer.flush();
+    }
+
+    static void run(Formatter formatter, BufferedReader reader, Writer writer) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            writer.write(formatLine(formatter, line));
+            writer.write('\n');
+            // Keep interactive callers going, but don't flush after every line of piped input
+            if (!reader.ready()) writer.flush();
+        }
+    }
+
+    /**
+     * @return a JSON result for every line, also blank ones, so that output lines match input lines
+     */
+    private static String formatLine(Formatter formatter, String line) {
+        if (line.trim().isEmpty()) return error("Empty line");
+        Object request;
+        try {
+            request = Json.parse(line);
+            if (!(request instanceof List)) {
+                String result = format(formatter, Json.toComponents(request));
+                return result == null ? error("Could not format address") : Json.quote(result);
+            }
+        } catch (IllegalArgumentException e) {
+            return error(e.getMessage());
+        }
+        List<String> results = new ArrayList<String>();
+        for (Object o : (List<?>) request) {
+            String result = null;
+            try {
+                result = format(formatter, Json.toComponents(o));
+            } catch (IllegalArgumentException ignored) {
+            }
+            results.add(result);
+        }
+        return Json.toJson(results);
+    }
+
+    /**
+     * @return the formatted address, {@code null} if it can't be formatted
+     */
+    private static String format(Formatter formatter, Map<String, String> components) {
+        try {
+            return formatter.formatAddress(components);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(String.valueOf(message)) + "}";
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.microg.address.Formatter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-lived HTTP formatting service bound to the loopback interface.
+ * <p>
+ * {@code POST /format} accepts either a single JSON component map, answered with a JSON string, or
+ * a JSON array of component maps, answered with a JSON array of strings ({@code null} for entries
+ * that could not be formatted). {@code GET /status} returns the {@link ServerStats} as JSON.
+ * Errors are answered with a non-200 status and a JSON object like {@code {"error":"..."}}; a
+ * single address that cannot be formatted gets status 422.
+ */
+public class FormatterServer {
+    public static final int DEFAULT_PORT = 8765;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BatchingFormatter formatter;
+    private final ServerStats stats = new ServerStats();
+
+    public FormatterServer(Formatter formatter, int port, int threads, int workers, int maxBatchSize) throws IOException {
+        this.formatter = new BatchingFormatter(formatter, stats, workers, maxBatchSize);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), port), 0);
+        server.createContext("/format", new FormatHandler());
+        server.createContext("/status", new StatusHandler());
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        formatter.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    private class FormatHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("POST required"));
+                return;
+            }
+            long start = System.nanoTime();
+            int status;
+            String body;
+            try {
+                Object request = Json.parse(readBody(exchange.getRequestBody()));
+                if (request instanceof List) {
+                    List<Map<String, String>> components = new ArrayList<Map<String, String>>();
+                    for (Object o : (List<?>) request) {
+                        components.add(Json.toComponents(o));
+                    }
+                    status = 200;
+                    body = Json.toJson(formatter.formatAll(components));
+                } else {
+                    String result = formatter.format(Json.toComponents(request));
+                    if (result != null) {
+                        status = 200;
+                        body = Json.quote(result);
+                    } else {
+                        status = 422;
+                        body = error("Could not format address");
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            } catch (IllegalStateException e) {
+                status = 503;
+                body = error(e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                status = 503;
+                body = error("Interrupted");
+            } catch (Throwable e) {
+                // Anything escaping here kills the pool thread and leaves the client without answer
+                status = 500;
+                body = error("Internal error");
+            }
+            // Record before responding, so a client asking for /status next sees its own request
+            stats.recordRequest(System.nanoTime() - start, status != 200);
+            respond(exchange, status, body);
+        }
+    }
+
+    private class StatusHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            readBody(exchange.getRequestBody());
+            respond(exchange, 200, stats.toJson());
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(String.valueOf(message)) + "}";
+    }
+
+    private static String readBody(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] arr = new byte[2048];
+        int c;
+        while ((c = is.read(arr)) != -1) {
+            bos.write(arr, 0, c);
+        }
+        is.close();
+        return new String(bos.toByteArray(), "UTF-8");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = cores * 4;
+        int workers = cores;
+        int maxBatchSize = 64;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) usage();
+            String arg = args[i];
+            String value = args[++i];
+            if (arg.equals("--port")) port = Integer.parseInt(value);
+            else if (arg.equals("--threads")) threads = Integer.parseInt(value);
+            else if (arg.equals("--workers")) workers = Integer.parseInt(value);
+            else if (arg.equals("--batch")) maxBatchSize = Integer.parseInt(value);
+            else if (arg.equals("--path")) path = value;
+            else usage();
+        }
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // Headers and body are written separately, avoid Nagle delays on small responses
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        Formatter formatter = path == null ? Formatter.getDefault() : new Formatter(path);
+        final FormatterServer server = new FormatterServer(formatter, port, threads, workers, maxBatchSize);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                server.stop();
+            }
+        });
+        server.start();
+        System.err.println("Listening on http://localhost:" + server.getPort() + "/");
+    }
+
+    private static void usage() {
+        System.err.println("Usage: FormatterServer [--port N] [--threads N] [--workers N] [--batch N] [--path CONF]");
+        System.exit(1);
+    }
+}
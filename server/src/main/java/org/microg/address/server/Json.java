@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader/writer, just enough for component maps and lists of them.
+ */
+class Json {
+    /**
+     * Component maps nest two levels deep, anything much deeper is rejected before the recursive
+     * descent can overflow the stack.
+     */
+    private static final int MAX_DEPTH = 32;
+
+    private final String in;
+    private int pos;
+    private int depth;
+
+    private Json(String in) {
+        this.in = in;
+    }
+
+    static Object parse(String in) {
+        Json json = new Json(in);
+        json.skipWhitespace();
+        Object res = json.readValue();
+        json.skipWhitespace();
+        if (json.pos != in.length()) throw json.error("Unexpected trailing data");
+        return res;
+    }
+
+    /**
+     * Converts a parsed JSON object into a component map. Non-string values are converted with
+     * {@link String#valueOf(Object)}, {@code null} values are dropped.
+     */
+    static Map<String, String> toComponents(Object o) {
+        if (!(o instanceof Map)) throw new IllegalArgumentException("Expected JSON object");
+        Map<String, String> components = new LinkedHashMap<String, String>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+            if (entry.getValue() != null) {
+                components.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+            }
+        }
+        return components;
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        appendQuoted(sb, s);
+        return sb.toString();
+    }
+
+    static void appendQuoted(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    static String toJson(List<String> list) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendQuoted(sb, list.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    private Object readValue() {
+        if (pos >= in.length()) throw error("Unexpected end of input");
+        char c = in.charAt(pos);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return "true";
+            case 'f':
+                expect("false");
+                return "false";
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> res = new LinkedHashMap<String, Object>();
+        enter();
+        skipWhitespace();
+        if (peek() == '}') {
+            leave();
+            return res;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') throw error("Expected string key");
+            String key = readString();
+            skipWhitespace();
+            if (peek() != ':') throw error("Expected ':'");
+            pos++;
+            skipWhitespace();
+            res.put(key, readValue());
+            skipWhitespace();
+            char c = peek();
+            if (c == '}') {
+                leave();
+                return res;
+            }
+            if (c != ',') throw error("Expected ',' or '}'");
+            pos++;
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> res = new ArrayList<Object>();
+        enter();
+        skipWhitespace();
+        if (peek() == ']') {
+            leave();
+            return res;
+        }
+        while (true) {
+            skipWhitespace();
+            res.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            if (c == ']') {
+                leave();
+                return res;
+            }
+            if (c != ',') throw error("Expected ',' or ']'");
+            pos++;
+        }
+    }
+
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= in.length()) throw error("Unterminated string");
+            char c = in.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= in.length()) throw error("Unterminated string");
+            char e = in.charAt(pos++);
+            switch (e) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > in.length()) throw error("Invalid unicode escape");
+                    try {
+                        sb.append((char) Integer.parseInt(in.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(e);
+            }
+        }
+    }
+
+    private String readNumber() {
+        int start = pos;
+        while (pos < in.length() && "+-0123456789.eE".indexOf(in.charAt(pos)) >= 0) pos++;
+        return in.substring(start, pos);
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) throw error("Nesting deeper than " + MAX_DEPTH);
+        pos++;
+    }
+
+    private void leave() {
+        depth--;
+        pos++;
+    }
+
+    private void expect(String literal) {
+        if (!in.startsWith(literal, pos)) throw error("Expected '" + literal + "'");
+        pos += literal.length();
+    }
+
+    private char peek() {
+        if (pos >= in.length()) throw error("Unexpected end of input");
+        return in.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < in.length() && Character.isWhitespace(in.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
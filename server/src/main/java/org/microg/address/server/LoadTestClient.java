@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for a {@link FormatterServer} running on localhost.
+ * <p>
+ * Spawns a number of client threads that each send a fixed number of requests, every request
+ * carrying a batch of sample addresses, and reports throughput and latency percentiles.
+ */
+public class LoadTestClient {
+    private static final String[] SAMPLES = new String[]{
+            "{\"house_number\":\"17\",\"road\":\"Rue du Médecin-Colonel Calbairac\",\"neighbourhood\":\"Lafourguette\",\"suburb\":\"Toulouse Ouest\",\"postcode\":\"31000\",\"city\":\"Toulouse\",\"county\":\"Toulouse\",\"state\":\"Midi-Pyrénées\",\"country\":\"France\",\"country_code\":\"fr\"}",
+            "{\"house_number\":\"301\",\"road\":\"Hamilton Avenue\",\"neighbourhood\":\"Crescent Park\",\"city\":\"Palo Alto\",\"postcode\":\"94303\",\"county\":\"Santa Clara County\",\"state\":\"California\",\"country\":\"United States of America\",\"country_code\":\"us\"}",
+            "{\"house_number\":\"10\",\"road\":\"Downing Street\",\"city\":\"London\",\"postcode\":\"SW1A 2AA\",\"state\":\"England\",\"country\":\"United Kingdom\",\"country_code\":\"gb\"}",
+            "{\"house_number\":\"1\",\"road\":\"Platz der Republik\",\"suburb\":\"Tiergarten\",\"city\":\"Berlin\",\"postcode\":\"11011\",\"state\":\"Berlin\",\"country\":\"Deutschland\",\"country_code\":\"de\"}"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:" + FormatterServer.DEFAULT_PORT;
+        int clients = 8;
+        int requestsPerClient = 1000;
+        int batchSize = 1;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) usage();
+            String arg = args[i];
+            String value = args[++i];
+            if (arg.equals("--url")) url = value;
+            else if (arg.equals("--clients")) clients = Integer.parseInt(value);
+            else if (arg.equals("--requests")) requestsPerClient = Integer.parseInt(value);
+            else if (arg.equals("--batch")) batchSize = Integer.parseInt(value);
+            else usage();
+        }
+        run(url, clients, requestsPerClient, batchSize);
+    }
+
+    private static void run(String url, int clients, final int requestsPerClient, int batchSize) throws Exception {
+        final URL formatUrl = new URL(url + "/format");
+        final byte[] body = buildBody(batchSize).getBytes("UTF-8");
+        final long[] latencies = new long[clients * requestsPerClient];
+        final AtomicInteger failures = new AtomicInteger();
+
+        // Warm up the server side before measuring
+        for (int i = 0; i < 100; i++) {
+            post(formatUrl, body);
+        }
+
+        Thread[] threads = new Thread[clients];
+        long start = System.nanoTime();
+        for (int t = 0; t < clients; t++) {
+            final int offset = t * requestsPerClient;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        long requestStart = System.nanoTime();
+                        try {
+                            if (post(formatUrl, body) != 200) failures.incrementAndGet();
+                        } catch (IOException e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[offset + i] = System.nanoTime() - requestStart;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        int requests = latencies.length;
+        System.out.println(String.format(Locale.US, "%d clients, %d requests, %d addresses per request, %d failures",
+                clients, requests, batchSize, failures.get()));
+        System.out.println(String.format(Locale.US, "%.1f requests/s, %.1f addresses/s",
+                requests / seconds, (double) requests * batchSize / seconds));
+        System.out.println(String.format(Locale.US, "latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99), latencies[requests - 1] / 1e6));
+        System.out.println("server: " + get(new URL(url + "/status")));
+    }
+
+    private static String buildBody(int batchSize) {
+        if (batchSize == 1) return SAMPLES[0];
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < batchSize; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(SAMPLES[i % SAMPLES.length]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private static int post(URL url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        connection.setFixedLengthStreamingMode(body.length);
+        OutputStream os = connection.getOutputStream();
+        os.write(body);
+        os.close();
+        int status = connection.getResponseCode();
+        InputStream is = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (is != null) drain(is);
+        return status;
+    }
+
+    private static String get(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        return drain(connection.getInputStream());
+    }
+
+    private static String drain(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] arr = new byte[2048];
+        int c;
+        while ((c = is.read(arr)) != -1) {
+            bos.write(arr, 0, c);
+        }
+        is.close();
+        return new String(bos.toByteArray(), "UTF-8");
+    }
+
+    private static void usage() {
+        System.err.println("Usage: LoadTestClient [--url URL] [--clients N] [--requests N] [--batch N]");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency counters of a running {@link FormatterServer}.
+ */
+public class ServerStats {
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong addresses = new AtomicLong();
+    private final AtomicLong failedAddresses = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    void recordRequest(long latencyNanos, boolean failed) {
+        requests.incrementAndGet();
+        if (failed) failedRequests.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        updateMax(maxLatencyNanos, latencyNanos);
+    }
+
+    void recordBatch(int size, int failed) {
+        batches.incrementAndGet();
+        addresses.addAndGet(size);
+        failedAddresses.addAndGet(failed);
+        updateMax(maxBatchSize, size);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getAddresses() {
+        return addresses.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public String toJson() {
+        double uptime = (System.nanoTime() - startNanos) / 1e9;
+        long requests = this.requests.get();
+        long addresses = this.addresses.get();
+        long batches = this.batches.get();
+        return String.format(Locale.US, "{\"uptimeSeconds\":%.3f,\"requests\":%d,\"failedRequests\":%d," +
+                        "\"addresses\":%d,\"failedAddresses\":%d,\"batches\":%d,\"meanBatchSize\":%.2f,\"maxBatchSize\":%d," +
+                        "\"addressesPerSecond\":%.1f,\"meanLatencyMillis\":%.3f,\"maxLatencyMillis\":%.3f}",
+                uptime, requests, failedRequests.get(),
+                addresses, failedAddresses.get(), batches, batches == 0 ? 0.0 : (double) addresses / batches, maxBatchSize.get(),
+                uptime == 0 ? 0.0 : addresses / uptime,
+                requests == 0 ? 0.0 : totalLatencyNanos.get() / 1e6 / requests, maxLatencyNanos.get() / 1e6);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the cases of {@link IntegrationTestSuite} through the native binary given in the
+ * {@code native.image.binary} system property, see the {@code nativeSmokeTest} task.
+ */
+@RunWith(Parameterized.class)
+public class NativeImageSmokeTest {
+
+    private String testFile;
+    private String tag;
+
+    @Parameterized.Parameters
+    public static Collection<String> test() throws IOException {
+        return Formatter.findFilesInPath("org/microg/address/testcases/countries", "*.yaml");
+    }
+
+    public NativeImageSmokeTest(String testFile) {
+        this.testFile = testFile;
+        this.tag = testFile.substring(testFile.lastIndexOf("/") + 1, testFile.length() - 5);
+    }
+
+    @Test
+    public void nativeTestCase() throws IOException, InterruptedException {
+        String binary = System.getProperty("native.image.binary");
+        Assume.assumeNotNull(binary);
+
+        List<Map> testCases = new ArrayList<Map>();
+        StringBuilder input = new StringBuilder();
+        for (Object o : Formatter.loadFile(testFile)) {
+            Map testCase = (Map) o;
+            testCases.add(testCase);
+            appendJson(input, (Map<String, String>) testCase.get("components"));
+            input.append('\n');
+        }
+
+        Process process = new ProcessBuilder(binary).redirectErrorStream(true).start();
+        Writer writer = new OutputStreamWriter(process.getOutputStream(), "UTF-8");
+        writer.write(input.toString());
+        writer.close();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+        for (Map testCase : testCases) {
+            String description = (String) testCase.get("description");
+            String expected = ((String) testCase.get("expected")).trim();
+            String line = reader.readLine();
+            Assert.assertNotNull("[" + tag + "] " + description + ": no output", line);
+            String actual = unquote(line);
+            Assert.assertEquals("[" + tag + "] " + description, expected.replace("\n", "|"), actual.replace("\n", "|"));
+        }
+        Assert.assertEquals(0, process.waitFor());
+    }
+
+    private static void appendJson(StringBuilder sb, Map<String, String> components) {
+        sb.append('{');
+        for (Map.Entry<String, String> entry : components.entrySet()) {
+            if (sb.charAt(sb.length() - 1) != '{') sb.append(',');
+            appendQuoted(sb, entry.getKey());
+            sb.append(':');
+            appendQuoted(sb, String.valueOf(entry.getValue()));
+        }
+        sb.append('}');
+    }
+
+    private static void appendQuoted(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static String unquote(String line) {
+        Assert.assertTrue("Not a JSON string: " + line, line.length() >= 2 && line.startsWith("\"") && line.endsWith("\""));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < line.length() - 1; i++) {
+            char c = line.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = line.charAt(++i);
+            if (e == 'n') sb.append('\n');
+            else if (e == 'r') sb.append('\r');
+            else if (e == 't') sb.append('\t');
+            else if (e == 'u') {
+                sb.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                i += 4;
+            } else sb.append(e);
+        }
+        return sb.toString();
+    }
+}
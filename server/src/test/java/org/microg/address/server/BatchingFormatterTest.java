@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.microg.address.Formatter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BatchingFormatterTest {
+
+    private static Map<String, String> components(String city) {
+        Map<String, String> components = new HashMap<String, String>();
+        components.put("city", city);
+        components.put("country_code", "fr");
+        return components;
+    }
+
+    @Test(timeout = 10000)
+    public void testErrorDoesNotKillWorker() throws IOException, InterruptedException {
+        Formatter formatter = new Formatter() {
+            @Override
+            public String formatAddress(Map<String, String> components) {
+                if (components.get("city").equals("overflow")) throw new StackOverflowError();
+                return components.get("city");
+            }
+        };
+        BatchingFormatter batching = new BatchingFormatter(formatter, new ServerStats(), 1, 4);
+        try {
+            List<Map<String, String>> batch = new ArrayList<Map<String, String>>();
+            batch.add(components("Paris"));
+            batch.add(components("overflow"));
+            batch.add(components("Lyon"));
+            List<String> results = batching.formatAll(batch);
+            Assert.assertEquals("Paris", results.get(0));
+            Assert.assertNull(results.get(1));
+            Assert.assertEquals("Lyon", results.get(2));
+            // The only worker is still alive
+            Assert.assertEquals("Nice", batching.format(components("Nice")));
+        } finally {
+            batching.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownFailsPending() throws IOException, InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Formatter formatter = new Formatter() {
+            @Override
+            public String formatAddress(Map<String, String> components) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                return components.get("city");
+            }
+        };
+        final BatchingFormatter batching = new BatchingFormatter(formatter, new ServerStats(), 1, 1);
+        final AtomicReference<Throwable> pendingResult = new AtomicReference<Throwable>();
+        Thread blocked = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    batching.format(components("Paris"));
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        blocked.start();
+        started.await();
+        Thread pending = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    batching.format(components("Lyon"));
+                } catch (Throwable e) {
+                    pendingResult.set(e);
+                }
+            }
+        };
+        pending.start();
+        while (pending.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        batching.shutdown();
+        pending.join();
+        Assert.assertTrue(pendingResult.get() instanceof IllegalStateException);
+        release.countDown();
+        blocked.join();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.microg.address.Formatter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+public class FormatterCliTest {
+
+    private static String[] run(String input) throws IOException {
+        Formatter formatter = new Formatter() {
+            @Override
+            public String formatAddress(Map<String, String> components) {
+                if (!components.containsKey("city")) throw new NullPointerException("no city");
+                return components.get("city");
+            }
+        };
+        StringWriter out = new StringWriter();
+        FormatterCli.run(formatter, new BufferedReader(new StringReader(input)), out);
+        return out.toString().split("\n", -1);
+    }
+
+    @Test
+    public void testOneLinePerInputLine() throws IOException {
+        String[] lines = run("{\"city\":\"Paris\"}\n\n[{\"city\":\"Lyon\"},{}]\n{\"city\":\n");
+        Assert.assertEquals(5, lines.length);
+        Assert.assertEquals("\"Paris\"", lines[0]);
+        Assert.assertEquals("{\"error\":\"Empty line\"}", lines[1]);
+        Assert.assertEquals("[\"Lyon\",null]", lines[2]);
+        Assert.assertTrue(lines[3], lines[3].startsWith("{\"error\":"));
+        Assert.assertEquals("", lines[4]);
+    }
+
+    @Test
+    public void testFormatFailure() throws IOException {
+        Assert.assertEquals("{\"error\":\"Could not format address\"}", run("{\"road\":\"Rue de Rivoli\"}\n")[0]);
+    }
+}
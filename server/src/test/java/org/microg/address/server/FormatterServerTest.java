@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.microg.address.Formatter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+public class FormatterServerTest {
+    private static final String PARIS = "{\"road\":\"Avenue Gustave Eiffel\",\"house_number\":\"5\",\"postcode\":\"75007\",\"city\":\"Paris\",\"country_code\":\"fr\"}";
+    private static final String BERLIN = "{\"road\":\"Platz der Republik\",\"house_number\":\"1\",\"postcode\":\"11011\",\"city\":\"Berlin\",\"country_code\":\"de\"}";
+
+    private FormatterServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new FormatterServer(new Formatter(), 0, 4, 2, 8);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void testFormatSingle() throws IOException {
+        Response response = request("POST", "/format", PARIS);
+        Assert.assertEquals(200, response.status);
+        Assert.assertTrue(response.body, ((String) Json.parse(response.body)).contains("Paris"));
+    }
+
+    @Test
+    public void testFormatBatch() throws IOException {
+        Response response = request("POST", "/format", "[" + PARIS + "," + BERLIN + "]");
+        Assert.assertEquals(200, response.status);
+        List<?> results = (List<?>) Json.parse(response.body);
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(((String) results.get(0)).contains("Paris"));
+        Assert.assertTrue(((String) results.get(1)).contains("Berlin"));
+        Assert.assertEquals(2, server.getStats().getAddresses());
+    }
+
+    @Test
+    public void testFormatFailure() throws IOException {
+        server.stop();
+        server = new FormatterServer(new Formatter() {
+            @Override
+            public String formatAddress(Map<String, String> components) {
+                throw new IllegalStateException("Broken formatter");
+            }
+        }, 0, 4, 2, 8);
+        server.start();
+        Response response = request("POST", "/format", PARIS);
+        Assert.assertEquals(422, response.status);
+        Assert.assertTrue(((Map<?, ?>) Json.parse(response.body)).containsKey("error"));
+    }
+
+    @Test
+    public void testInvalidJson() throws IOException {
+        Assert.assertEquals(400, request("POST", "/format", "{\"city\":").status);
+    }
+
+    @Test
+    public void testDeeplyNestedJson() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) sb.append('[');
+        for (int i = 0; i < 20000; i++) sb.append(']');
+        Response response = request("POST", "/format", sb.toString());
+        Assert.assertEquals(400, response.status);
+        Assert.assertTrue(((Map<?, ?>) Json.parse(response.body)).containsKey("error"));
+    }
+
+    @Test
+    public void testStatus() throws IOException {
+        request("POST", "/format", "[" + PARIS + "," + BERLIN + "," + PARIS + "]");
+        Response response = request("GET", "/status", null);
+        Assert.assertEquals(200, response.status);
+        Map<?, ?> status = (Map<?, ?>) Json.parse(response.body);
+        Assert.assertEquals("1", status.get("requests"));
+        Assert.assertEquals("3", status.get("addresses"));
+        Assert.assertTrue(Integer.parseInt((String) status.get("batches")) >= 1);
+    }
+
+    private Response request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            OutputStream os = connection.getOutputStream();
+            os.write(body.getBytes("UTF-8"));
+            os.close();
+        }
+        Response response = new Response();
+        response.status = connection.getResponseCode();
+        InputStream is = response.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] arr = new byte[2048];
+        int c;
+        while ((c = is.read(arr)) != -1) {
+            bos.write(arr, 0, c);
+        }
+        is.close();
+        response.body = new String(bos.toByteArray(), "UTF-8");
+        return response;
+    }
+
+    private static class Response {
+        private int status;
+        private String body;
+    }
+}
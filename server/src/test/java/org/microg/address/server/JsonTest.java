@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class JsonTest {
+
+    @Test
+    public void testParseComponents() {
+        Map<String, String> components = Json.toComponents(Json.parse("{\"road\": \"Rue de l'\\u00e9glise\", \"house_number\": 17, \"state\": null}"));
+        Assert.assertEquals("Rue de l'église", components.get("road"));
+        Assert.assertEquals("17", components.get("house_number"));
+        Assert.assertFalse(components.containsKey("state"));
+    }
+
+    @Test
+    public void testParseBatch() {
+        List<?> batch = (List<?>) Json.parse(" [ {\"city\":\"Paris\"}, {} ] ");
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals("Paris", Json.toComponents(batch.get(0)).get("city"));
+        Assert.assertTrue(Json.toComponents(batch.get(1)).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalid() {
+        Json.parse("{\"city\": \"Paris\"");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseTooDeep() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) sb.append('[');
+        for (int i = 0; i < 20000; i++) sb.append(']');
+        Json.parse(sb.toString());
+    }
+
+    @Test
+    public void testWriteList() {
+        Assert.assertEquals("[\"10 Downing Street\\nLondon\",null]", Json.toJson(Arrays.asList("10 Downing Street\nLondon", null)));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded throughput per row of {@link Formatter#formatAddresses(Map, String[])} compared
+ * to calling {@link Formatter#formatAddress(Map)} for a map per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ColumnarFormatBenchmark {
+    private static final int ROWS = 1024;
+    private static final String[][] SAMPLES = new String[][]{
+            {"de", "Platz der Republik", "1", "11011", "Berlin"},
+            {"fr", "Avenue Gustave Eiffel", "5", "75007", "Paris"},
+            {"us", "Hamilton Avenue", "301", "94303", "Palo Alto"},
+            {"gb", "Downing Street", "10", "SW1A 2AA", "London"},
+            {"nl", "Dam", null, "1012 JS", "Amsterdam"},
+    };
+    private static final String[] NAMES = new String[]{"country_code", "road", "house_number", "postcode", "city"};
+
+    private Formatter formatter;
+    private Map<String, String[]> columns;
+    private String[] out;
+
+    @Setup
+    public void setup() throws IOException {
+        formatter = new Formatter();
+        columns = new HashMap<String, String[]>();
+        for (String name : NAMES) {
+            columns.put(name, new String[ROWS]);
+        }
+        // Shuffled countries, as in unsorted exports
+        Random random = new Random(42);
+        for (int row = 0; row < ROWS; row++) {
+            String[] sample = SAMPLES[random.nextInt(SAMPLES.length)];
+            for (int i = 0; i < NAMES.length; i++) {
+                columns.get(NAMES[i])[row] = sample[i];
+            }
+        }
+        out = new String[ROWS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public String[] mapPerRow() {
+        for (int row = 0; row < ROWS; row++) {
+            Map<String, String> components = new HashMap<String, String>();
+            for (String name : NAMES) {
+                String value = columns.get(name)[row];
+                if (value != null) components.put(name, value);
+            }
+            out[row] = formatter.formatAddress(components);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public String[] columns() {
+        formatter.formatAddresses(columns, out);
+        return out;
+    }
+}
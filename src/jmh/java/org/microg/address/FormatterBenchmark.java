@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code gradle jmhBaseline} and {@code gradle jmhMultiRelease} to compare the baseline
+ * classes with the ones in {@code META-INF/versions/17}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FormatterBenchmark {
+    private static final String TEMPLATE = "{{{attention}}}\n{{{house}}}\n{{{road}}} {{{house_number}}}\n" +
+            "{{{postcode}}} {{#first}} {{{postal_city}}} || {{{city}}} || {{{town}}} || {{{village}}} || {{{municipality}}} || {{{hamlet}}} || {{{county}}} || {{{state}}} {{/first}}\n" +
+            "{{{archipelago}}}\n{{{country}}}\n";
+
+    private Formatter formatter;
+    private Map<String, String> components;
+    private String rendered;
+
+    @Setup
+    public void setup() throws IOException {
+        formatter = new Formatter();
+        components = new HashMap<String, String>();
+        components.put("house_number", "1");
+        components.put("road", "Platz der Republik");
+        components.put("suburb", "Tiergarten");
+        components.put("city", "Berlin");
+        components.put("postcode", "11011");
+        components.put("state", "Berlin");
+        components.put("country", "Deutschland");
+        components.put("country_code", "de");
+        rendered = FormatterSupport.renderTemplate(components, TEMPLATE);
+    }
+
+    @Benchmark
+    public String renderTemplate() {
+        return FormatterSupport.renderTemplate(components, TEMPLATE);
+    }
+
+    @Benchmark
+    public String clean() {
+        return FormatterSupport.clean(rendered);
+    }
+
+    @Benchmark
+    public String formatAddress() {
+        return formatter.formatAddress(components);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import java.io.IOException;
+
+/**
+ * Holder for {@link Formatter#getDefault()}.
+ * <p>
+ * Initialized at image build time in GraalVM native images (see
+ * {@code META-INF/native-image/org.microg/address-formatter/native-image.properties}), so the
+ * parsed configuration becomes part of the image heap.
+ */
+final class DefaultFormatter {
+    static final Formatter INSTANCE;
+    static final IOException ERROR;
+
+    static {
+        Formatter instance = null;
+        IOException error = null;
+        try {
+            instance = new Formatter();
+        } catch (IOException e) {
+            error = e;
+        }
+        INSTANCE = instance;
+        ERROR = error;
+    }
+
+    private DefaultFormatter() {
+    }
+}
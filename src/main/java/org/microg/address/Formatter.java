@@ -66,6 +66,16 @@ public class Formatter {
         readConfiguration();
     }
 
+    /**
+     * Returns a shared instance using the bundled configuration at {@link #DEFAULT_PATH}.
+     * <p>
+     * In GraalVM native images, the configuration of this instance is parsed at image build time.
+     */
+    public static Formatter getDefault() throws IOException {
+        if (DefaultFormatter.ERROR != null) throw DefaultFormatter.ERROR;
+        return DefaultFormatter.INSTANCE;
+    }
+
     public String guessName(Map<String, String> components) {
         components = ensureValidMap(components);
         prepareRendering(components);
@@ -80,16 +90,99 @@ public class Formatter {
     }
 
     public String formatAddress(Map<String, String> components) {
-        components = ensureValidMap(components);
+        return format(ensureValidMap(components));
+    }
+
+    /**
+     * Formats addresses given as columns, one array per component name with {@code null} for
+     * rows where the component is missing. Rows are formatted grouped by country, reusing a
+     * single component map, and the results are written to the same row of {@code out}.
+     * <p>
+     * Unlike {@link #formatAddress(Map)}, which turns {@code null} values into the string
+     * {@code "null"}, missing values are left out of the address. A {@code null} column is
+     * treated as missing in all rows. Rows that fail to format are set to {@code null} in
+     * {@code out}, the remaining rows are still formatted.
+     *
+     * @param columns component columns, each with at least {@code out.length} rows
+     * @param out     receives the formatted addresses, its length determines the number of rows
+     * @throws IllegalArgumentException if a column has less than {@code out.length} rows
+     */
+    public void formatAddresses(Map<String, ? extends CharSequence[]> columns, String[] out) {
+        int rows = out.length;
+        String[] names = new String[columns.size()];
+        CharSequence[][] values = new CharSequence[columns.size()][];
+        int count = 0;
+        for (Map.Entry<String, ? extends CharSequence[]> column : columns.entrySet()) {
+            if (column.getValue() == null) continue;
+            if (column.getValue().length < rows)
+                throw new IllegalArgumentException("Column " + column.getKey() + " has less than " + rows + " rows");
+            names[count] = column.getKey();
+            values[count] = column.getValue();
+            count++;
+        }
+
+        Map<String, String> components = new HashMap<String, String>();
+        for (int row : groupRowsByTemplate(columns.get(COMPONENT_COUNTRY_CODE), rows)) {
+            components.clear();
+            for (int i = 0; i < count; i++) {
+                CharSequence value = values[i][row];
+                if (value != null) components.put(names[i], value.toString());
+            }
+            try {
+                out[row] = format(components);
+            } catch (RuntimeException e) {
+                out[row] = null;
+            }
+        }
+    }
+
+    /**
+     * @return row indices ordered by the template selected from their country code, keeping the
+     * original order within each group
+     */
+    private int[] groupRowsByTemplate(CharSequence[] countryCodes, int rows) {
+        int[] order = new int[rows];
+        if (countryCodes == null) {
+            for (int row = 0; row < rows; row++) order[row] = row;
+            return order;
+        }
+
+        int[] groupOfRow = new int[rows];
+        Map<String, Integer> groupOfCountryCode = new HashMap<String, Integer>();
+        Map<Template, Integer> groupOfTemplate = new IdentityHashMap<Template, Integer>();
+        for (int row = 0; row < rows; row++) {
+            String cc = countryCodes[row] == null ? null : countryCodes[row].toString();
+            Integer group = groupOfCountryCode.get(cc);
+            if (group == null) {
+                Template template = selectTemplateFromCountryCode(cc == null ? null : cc.toUpperCase());
+                if (template.useCountry() != null) template = selectTemplateFromCountryCode(template.useCountry());
+                group = groupOfTemplate.get(template);
+                if (group == null) {
+                    group = groupOfTemplate.size();
+                    groupOfTemplate.put(template, group);
+                }
+                groupOfCountryCode.put(cc, group);
+            }
+            groupOfRow[row] = group;
+        }
+
+        int[] offsets = new int[groupOfTemplate.size() + 1];
+        for (int row = 0; row < rows; row++) offsets[groupOfRow[row] + 1]++;
+        for (int group = 1; group < offsets.length; group++) offsets[group] += offsets[group - 1];
+        for (int row = 0; row < rows; row++) order[offsets[groupOfRow[row]]++] = row;
+        return order;
+    }
+
+    private String format(Map<String, String> components) {
         Template config = prepareRendering(components);
 
-        String rendered = clean(renderTemplate(components, chooseAddressTemplate(components, config)));
+        String rendered = FormatterSupport.clean(FormatterSupport.renderTemplate(components, chooseAddressTemplate(components, config)));
 
         for (Template.Replacement replacement : config.postformatReplace()) {
-            rendered = rendered.replaceAll(replacement.getFrom(), replacement.getTo());
+            rendered = replacement.replaceAll(rendered);
         }
 
-        return clean(rendered);
+        return FormatterSupport.clean(rendered);
     }
 
     private Template prepareRendering(Map<String, String> components) {
@@ -104,7 +197,7 @@ public class Formatter {
     }
 
     private Template selectTemplateFromCountryCode(String cc) {
-        return templates.containsKey(cc) ? templates.get(cc) : templates.get(TEMPLATE_DEFAULT);
+        return cc != null && templates.containsKey(cc) ? templates.get(cc) : templates.get(TEMPLATE_DEFAULT);
     }
 
     private void sanitizeComponents(Map<String, String> components) {
@@ -165,69 +258,6 @@ public class Formatter {
         return components;
     }
 
-    private String clean(String in) {
-        in = in.replaceAll("\\s*\\n", "\n").replaceAll("  +", " ").replaceAll(",\\s*,", ",");
-
-        String[] lines = in.split("\n");
-        List<String> seenLines = new ArrayList<String>();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i].trim();
-            while (line.startsWith(",") || line.startsWith("-")) line = line.substring(1).trim();
-            while (line.endsWith(",") || line.endsWith("-"))
-                line = line.substring(0, line.length() - 1).trim();
-            if (!seenLines.contains(line) && !line.isEmpty()) {
-                String[] split1 = line.split(",");
-                StringBuilder sb2 = new StringBuilder();
-                Set<String> seenWords = new HashSet<String>();
-                for (String s : split1) {
-                    if (seenWords.contains(s.trim().toLowerCase())) continue;
-                    if (sb2.length() > 0) sb2.append(",");
-                    if (!s.trim().equalsIgnoreCase("new york")) {
-                        // New York is special
-                        seenWords.add(s.trim().toLowerCase());
-                    }
-                    sb2.append(s);
-                }
-                seenLines.add(sb2.toString());
-                sb.append(sb2).append("\n");
-            }
-        }
-
-        return sb.toString().trim();
-    }
-
-    private String renderTemplate(Map<String, String> components, String template) {
-        for (String s : components.keySet()) {
-            template = template.replace("{{{" + s + "}}}", components.get(s));
-            template = template.replace("{{" + s + "}}", components.get(s));
-        }
-
-        template = template.replaceAll("\\{\\{\\{[^\\}]*\\}\\}\\}", "");
-
-        String[] split = template.split("\\{\\{#first\\}\\}");
-        StringBuilder sb = new StringBuilder(split[0]);
-        for (int i = 0; i < split.length; i++) {
-            if (i == 0) continue;
-            String[] s = split[i].split("\\{\\{/first\\}\\}");
-            String[] c = s[0].split("\\|\\|");
-            String h = null;
-            for (String s1 : c) {
-                if (!s1.trim().isEmpty()) {
-                    h = s1.trim();
-                    break;
-                }
-            }
-            if (h != null)
-                sb.append(h);
-            sb.append(s[1]);
-        }
-
-        template = sb.toString();
-        template = template.replaceAll("\\{\\{[^\\}]*\\}\\}", "");
-        return template;
-    }
-
     private void sanityCleaning(Map<String, String> components) {
         if (components.containsKey(COMPONENT_POSTCODE)) {
             if (components.get(COMPONENT_POSTCODE).length() > 20 || Pattern.compile("\\d+;\\d+").matcher(components.get(COMPONENT_POSTCODE)).matches())
@@ -245,7 +275,7 @@ public class Formatter {
     private List<String> findUnknownComponents(Map<String, String> components) {
         List<String> unknown = new ArrayList<String>();
         for (String s : components.keySet()) {
-            if (!orderedComponents.containsKey(s) && !componentAliases.containsKey(s))
+            if (!orderedComponents.containsKey(s) && (s == null || !componentAliases.containsKey(s)))
                 unknown.add(s);
         }
         return unknown;
@@ -300,12 +330,12 @@ public class Formatter {
     private void applyReplacements(Map<String, String> components, List<Template.Replacement> rules) {
         for (String component : components.keySet()) {
             for (Template.Replacement fromto : rules) {
-                if (fromto.getFrom().matches("^[a-z_]*=.*")) {
+                if (fromto.isComponentRule()) {
                     if (fromto.getFrom().startsWith(component + "=")) {
-                        components.put(component, components.get(component).replaceAll(fromto.getFrom().substring(component.length() + 1), fromto.getTo()));
+                        components.put(component, fromto.replaceComponent(component, components.get(component)));
                     }
                 } else {
-                    components.put(component, components.get(component).replaceAll(fromto.getFrom(), fromto.getTo()));
+                    components.put(component, fromto.replaceAll(components.get(component)));
                 }
             }
         }
@@ -379,7 +409,7 @@ public class Formatter {
     private void readConfiguration() throws IOException {
         List<String> filenames = findFilesInPath(path + "/countries", "*.yaml");
         Collections.sort(filenames);
-        templates = new HashMap<String, Template>();
+        Map<String, Template> templates = new HashMap<String, Template>();
         for (String filename : filenames) {
             Object o = loadFile(filename).iterator().next();
             if (!(o instanceof Map)) continue;
@@ -391,7 +421,9 @@ public class Formatter {
             }
         }
 
-        componentAliases = new LinkedHashMap<String, String>();
+        this.templates = FormatterSupport.freeze(templates);
+
+        Map<String, String> componentAliases = new LinkedHashMap<String, String>();
         orderedComponents = new HashMap<String, List<String>>();
         for (Object o : loadFile(path + "/components.yaml")) {
             if (!(o instanceof Map)) continue;
@@ -403,9 +435,10 @@ public class Formatter {
             }
             orderedComponents.put(name, aliases);
         }
+        this.componentAliases = FormatterSupport.freeze(componentAliases);
 
         Map<String, Map<String, Object>> stateCodes = (Map<String, Map<String, Object>>) loadFile(path + "/state_codes.yaml").iterator().next();
-        this.stateCodes = new HashMap<String, Map<String, Set<String>>>();
+        Map<String, Map<String, Set<String>>> processedStateCodesByCountry = new HashMap<String, Map<String, Set<String>>>();
         for (String countryCode : stateCodes.keySet()) {
             Map<String, Object> stateCodesOfCountry = stateCodes.get(countryCode);
             Map<String, Set<String>> processedStateCodes = new HashMap<String, Set<String>>();
@@ -422,11 +455,12 @@ public class Formatter {
                     }
                 }
             }
-            this.stateCodes.put(countryCode, processedStateCodes);
+            processedStateCodesByCountry.put(countryCode, processedStateCodes);
         }
+        this.stateCodes = FormatterSupport.freeze(processedStateCodesByCountry);
 
         Map<String, Map<String, Object>> countyCodes = (Map<String, Map<String, Object>>) loadFile(path + "/county_codes.yaml").iterator().next();
-        this.countyCodes = new HashMap<String, Map<String, Set<String>>>();
+        Map<String, Map<String, Set<String>>> processedCountyCodesByCountry = new HashMap<String, Map<String, Set<String>>>();
         for (String countryCode : countyCodes.keySet()) {
             Map<String, Object> stateCodesOfCountry = countyCodes.get(countryCode);
             Map<String, Set<String>> processedStateCodes = new HashMap<String, Set<String>>();
@@ -443,8 +477,9 @@ public class Formatter {
                     }
                 }
             }
-            this.countyCodes.put(countryCode, processedStateCodes);
+            processedCountyCodesByCountry.put(countryCode, processedStateCodes);
         }
+        this.countyCodes = FormatterSupport.freeze(processedCountyCodesByCountry);
     }
 
     static Iterable<Object> loadFile(String filename) {
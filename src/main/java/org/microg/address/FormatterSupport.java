@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import java.util.*;
+
+/**
+ * Hot paths of {@link Formatter}.
+ * <p>
+ * This is the Java 8 compatible baseline. The jar ships a replacement for Java 17 and newer in
+ * {@code META-INF/versions/17}, so any change here has to be mirrored in {@code src/main/java17}.
+ */
+final class FormatterSupport {
+    private FormatterSupport() {
+    }
+
+    /**
+     * Returns an unmodifiable view for configuration storage. Lookups on the result must not use
+     * {@code null} keys, the Java 17 version rejects them unless the map itself contains
+     * {@code null} keys or values.
+     */
+    static <K, V> Map<K, V> freeze(Map<K, V> map) {
+        return Collections.unmodifiableMap(map);
+    }
+
+    static String clean(String in) {
+        in = in.replaceAll("\\s*\\n", "\n").replaceAll("  +", " ").replaceAll(",\\s*,", ",");
+
+        String[] lines = in.split("\n");
+        List<String> seenLines = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            while (line.startsWith(",") || line.startsWith("-")) line = line.substring(1).trim();
+            while (line.endsWith(",") || line.endsWith("-"))
+                line = line.substring(0, line.length() - 1).trim();
+            if (!seenLines.contains(line) && !line.isEmpty()) {
+                String[] split1 = line.split(",");
+                StringBuilder sb2 = new StringBuilder();
+                Set<String> seenWords = new HashSet<String>();
+                for (String s : split1) {
+                    if (seenWords.contains(s.trim().toLowerCase())) continue;
+                    if (sb2.length() > 0) sb2.append(",");
+                    if (!s.trim().equalsIgnoreCase("new york")) {
+                        // New York is special
+                        seenWords.add(s.trim().toLowerCase());
+                    }
+                    sb2.append(s);
+                }
+                seenLines.add(sb2.toString());
+                sb.append(sb2).append("\n");
+            }
+        }
+
+        return sb.toString().trim();
+    }
+
+    static String renderTemplate(Map<String, String> components, String template) {
+        for (String s : components.keySet()) {
+            template = template.replace("{{{" + s + "}}}", components.get(s));
+            template = template.replace("{{" + s + "}}", components.get(s));
+        }
+
+        template = template.replaceAll("\\{\\{\\{[^\\}]*\\}\\}\\}", "");
+
+        String[] split = template.split("\\{\\{#first\\}\\}");
+        StringBuilder sb = new StringBuilder(split[0]);
+        for (int i = 0; i < split.length; i++) {
+            if (i == 0) continue;
+            String[] s = split[i].split("\\{\\{/first\\}\\}");
+            String[] c = s[0].split("\\|\\|");
+            String h = null;
+            for (String s1 : c) {
+                if (!s1.trim().isEmpty()) {
+                    h = s1.trim();
+                    break;
+                }
+            }
+            if (h != null)
+                sb.append(h);
+            sb.append(s[1]);
+        }
+
+        template = sb.toString();
+        template = template.replaceAll("\\{\\{[^\\}]*\\}\\}", "");
+        return template;
+    }
+}
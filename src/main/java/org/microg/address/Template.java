@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import static org.microg.address.Formatter.getString;
 
@@ -102,18 +104,37 @@ public class Template {
     }
 
     public static class Replacement {
+        private static final Pattern COMPONENT_RULE = Pattern.compile("^[a-z_]*=.*");
+
         private String from;
         private String to;
+        private String component;
+        private Pattern pattern;
 
         private Replacement(String from, String to) {
             this.from = from;
             this.to = to;
+            if (COMPONENT_RULE.matcher(from).matches()) {
+                this.component = from.substring(0, from.indexOf('='));
+                this.pattern = compile(from.substring(component.length() + 1));
+            } else {
+                this.pattern = compile(from);
+            }
         }
 
         private static Replacement create(List<String> list) {
             return new Replacement(list.get(0), list.get(1));
         }
 
+        private static Pattern compile(String regex) {
+            try {
+                return Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                // Reported by String.replaceAll when the rule is applied
+                return null;
+            }
+        }
+
         public String getFrom() {
             return from;
         }
@@ -121,5 +142,23 @@ public class Template {
         public String getTo() {
             return to;
         }
+
+        /**
+         * @return whether this rule only applies to a single component ({@code component=regex})
+         */
+        boolean isComponentRule() {
+            return component != null;
+        }
+
+        String replaceAll(String input) {
+            if (pattern == null || component != null) return input.replaceAll(from, to);
+            return pattern.matcher(input).replaceAll(to);
+        }
+
+        String replaceComponent(String component, String value) {
+            if (pattern == null || !component.equals(this.component))
+                return value.replaceAll(from.substring(component.length() + 1), to);
+            return pattern.matcher(value).replaceAll(to);
+        }
     }
 }
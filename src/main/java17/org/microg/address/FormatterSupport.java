@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Hot paths of {@link Formatter}, Java 17 version packaged in {@code META-INF/versions/17}.
+ * <p>
+ * Produces the same output as the baseline in {@code src/main/java}, but scans templates in a
+ * single pass instead of rebuilding them once per component and uses precompiled patterns.
+ * Whitespace handling deliberately sticks to {@link String#trim()} rather than
+ * {@link String#strip()}, as the two disagree on control and non-ASCII space characters.
+ */
+final class FormatterSupport {
+    private static final Pattern SPACE_BEFORE_NEWLINE = Pattern.compile("\\s*\\n");
+    private static final Pattern MULTIPLE_SPACES = Pattern.compile("  +");
+    private static final Pattern EMPTY_LIST_ITEM = Pattern.compile(",\\s*,");
+    private static final Pattern UNKNOWN_TRIPLE_TAG = Pattern.compile("\\{\\{\\{[^\\}]*\\}\\}\\}");
+
+    private static final String FIRST_START = "{{#first}}";
+    private static final String FIRST_END = "{{/first}}";
+    private static final String FIRST_SEPARATOR = "||";
+    private static final Pattern FIRST_START_PATTERN = Pattern.compile(Pattern.quote(FIRST_START));
+    private static final Pattern FIRST_END_PATTERN = Pattern.compile(Pattern.quote(FIRST_END));
+    private static final Pattern FIRST_SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(FIRST_SEPARATOR));
+
+    private FormatterSupport() {
+    }
+
+    static <K, V> Map<K, V> freeze(Map<K, V> map) {
+        // Map.copyOf rejects null keys and values, e.g. from a components.yaml entry without name
+        if (map.containsKey(null) || map.containsValue(null)) {
+            return Collections.unmodifiableMap(new HashMap<>(map));
+        }
+        return Map.copyOf(map);
+    }
+
+    static String clean(String in) {
+        in = SPACE_BEFORE_NEWLINE.matcher(in).replaceAll("\n");
+        in = MULTIPLE_SPACES.matcher(in).replaceAll(" ");
+        in = EMPTY_LIST_ITEM.matcher(in).replaceAll(",");
+
+        var seenLines = new HashSet<String>();
+        var sb = new StringBuilder(in.length());
+        for (String rawLine : in.split("\n")) {
+            String line = stripSeparators(rawLine);
+            if (line.isEmpty() || seenLines.contains(line)) continue;
+            var deduplicated = new StringBuilder(line.length());
+            var seenWords = new HashSet<String>();
+            for (String s : line.split(",")) {
+                String word = s.trim();
+                String key = word.toLowerCase();
+                if (seenWords.contains(key)) continue;
+                if (deduplicated.length() > 0) deduplicated.append(',');
+                if (!word.equalsIgnoreCase("new york")) {
+                    // New York is special
+                    seenWords.add(key);
+                }
+                deduplicated.append(s);
+            }
+            seenLines.add(deduplicated.toString());
+            sb.append(deduplicated).append('\n');
+        }
+
+        return sb.toString().trim();
+    }
+
+    /**
+     * Same as repeatedly trimming and removing leading and trailing {@code ','} and {@code '-'}.
+     */
+    private static String stripSeparators(String line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && isSeparator(line.charAt(start))) start++;
+        while (end > start && isSeparator(line.charAt(end - 1))) end--;
+        return line.substring(start, end);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c <= ' ' || c == ',' || c == '-';
+    }
+
+    static String renderTemplate(Map<String, String> components, String template) {
+        return removeTags(renderFirst(substitute(components, template)));
+    }
+
+    /**
+     * Replaces {@code {{{name}}}} and {@code {{name}}} with their component values. Unknown
+     * triple-braced tags are dropped, other tags (like sections) are left in place.
+     * <p>
+     * Unbalanced or nested braces, in the template or in component values, are resolved
+     * differently by the per-component replacement of the baseline, as it can form new tags from
+     * values and their surroundings. Templates or values containing them take that slower path.
+     */
+    private static String substitute(Map<String, String> components, String template) {
+        var sb = new StringBuilder(template.length() + 64);
+        int pos = 0;
+        int open;
+        while ((open = template.indexOf("{{", pos)) >= 0) {
+            sb.append(template, pos, open);
+            boolean triple = template.startsWith("{{{", open);
+            int nameStart = open + (triple ? 3 : 2);
+            int nameEnd = template.indexOf('}', nameStart);
+            String close = triple ? "}}}" : "}}";
+            if (nameEnd < 0 || !template.startsWith(close, nameEnd) || template.lastIndexOf('{', nameEnd) >= nameStart) {
+                return substituteMalformed(components, template);
+            }
+            String value = components.get(template.substring(nameStart, nameEnd));
+            if (value != null) {
+                if (value.indexOf('{') >= 0 || value.indexOf('}') >= 0) {
+                    return substituteMalformed(components, template);
+                }
+                sb.append(value);
+            } else if (!triple) {
+                sb.append(template, open, nameEnd + 2);
+            }
+            pos = nameEnd + close.length();
+        }
+        return sb.append(template, pos, template.length()).toString();
+    }
+
+    private static String substituteMalformed(Map<String, String> components, String template) {
+        for (var component : components.entrySet()) {
+            template = template.replace("{{{" + component.getKey() + "}}}", component.getValue());
+            template = template.replace("{{" + component.getKey() + "}}", component.getValue());
+        }
+        return UNKNOWN_TRIPLE_TAG.matcher(template).replaceAll("");
+    }
+
+    /**
+     * Replaces each {@code {{#first}} a || b {{/first}}} section with its first non-blank option.
+     * <p>
+     * Sections without {@code {{/first}}} or ending with it make the baseline fail with an
+     * {@link ArrayIndexOutOfBoundsException}, templates containing them take the baseline path.
+     */
+    private static String renderFirst(String template) {
+        int start = template.indexOf(FIRST_START);
+        if (start < 0) return template;
+        var sb = new StringBuilder(template.length());
+        sb.append(template, 0, start);
+        while (start >= 0) {
+            int sectionStart = start + FIRST_START.length();
+            int next = template.indexOf(FIRST_START, sectionStart);
+            int sectionEnd = next < 0 ? template.length() : next;
+            int end = template.indexOf(FIRST_END, sectionStart);
+            if (end < 0 || end > sectionEnd || template.startsWith(FIRST_END, sectionEnd - FIRST_END.length())) {
+                return renderFirstMalformed(template);
+            }
+
+            int optionStart = sectionStart;
+            while (optionStart <= end) {
+                int optionEnd = template.indexOf(FIRST_SEPARATOR, optionStart);
+                if (optionEnd < 0 || optionEnd > end) optionEnd = end;
+                String option = template.substring(optionStart, optionEnd).trim();
+                if (!option.isEmpty()) {
+                    sb.append(option);
+                    break;
+                }
+                optionStart = optionEnd + FIRST_SEPARATOR.length();
+            }
+
+            int restStart = end + FIRST_END.length();
+            int restEnd = template.indexOf(FIRST_END, restStart);
+            sb.append(template, restStart, restEnd < 0 || restEnd > sectionEnd ? sectionEnd : restEnd);
+            start = next;
+        }
+        return sb.toString();
+    }
+
+    private static String renderFirstMalformed(String template) {
+        String[] split = FIRST_START_PATTERN.split(template);
+        var sb = new StringBuilder(split[0]);
+        for (int i = 1; i < split.length; i++) {
+            String[] s = FIRST_END_PATTERN.split(split[i]);
+            for (String option : FIRST_SEPARATOR_PATTERN.split(s[0])) {
+                if (!option.trim().isEmpty()) {
+                    sb.append(option.trim());
+                    break;
+                }
+            }
+            sb.append(s[1]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Removes all remaining {@code {{...}}} tags.
+     */
+    private static String removeTags(String template) {
+        int open = template.indexOf("{{");
+        if (open < 0) return template;
+        var sb = new StringBuilder(template.length());
+        int pos = 0;
+        while (open >= 0) {
+            int close = template.indexOf('}', open + 2);
+            if (close >= 0 && template.startsWith("}}", close)) {
+                sb.append(template, pos, open);
+                pos = close + 2;
+                open = template.indexOf("{{", pos);
+            } else {
+                open = template.indexOf("{{", open + 1);
+            }
+        }
+        return sb.append(template, pos, template.length()).toString();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013-2017 microG Project Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.microg.address;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs against the baseline ({@code test}) and the Java 17 classes ({@code testJava17}).
+ */
+public class FormatterSupportTest {
+
+    private static Map<String, String> getComponents() {
+        Map<String, String> components = new HashMap<String, String>();
+        components.put("road", "Platz der Republik");
+        components.put("house_number", "1");
+        components.put("postcode", "11011");
+        components.put("town", "Berlin");
+        components.put("state", "");
+        return components;
+    }
+
+    @Test
+    public void testRenderTemplate() {
+        Assert.assertEquals("Platz der Republik 1\n11011 Berlin\n\n",
+                FormatterSupport.renderTemplate(getComponents(), "{{{road}}} {{{house_number}}}\n{{{postcode}}} {{#first}} {{{city}}} || {{{town}}} {{/first}}\n{{{country}}}{{unknown}}\n"));
+    }
+
+    @Test
+    public void testRenderTemplateMalformed() {
+        Assert.assertEquals("{Platz der Republik, 11011{}}",
+                FormatterSupport.renderTemplate(getComponents(), "{{{{road}}}, {{{postcode}}}{{{{state}}}}}"));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testRenderTemplateUnclosedFirst() {
+        // Not a valid template, but both versions have to fail the same way
+        FormatterSupport.renderTemplate(getComponents(), "{{{road}}}\n{{#first}} {{{city}}} || {{{town}}}\n");
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testRenderTemplateFirstAtEnd() {
+        FormatterSupport.renderTemplate(getComponents(), "{{{road}}}\n{{#first}} {{{city}}} || {{{town}}} {{/first}}");
+    }
+
+    @Test
+    public void testClean() {
+        Assert.assertEquals("Platz der Republik 1\nBerlin, Germany",
+                FormatterSupport.clean("- Platz der Republik   1 \n, Berlin, , Germany, berlin -\n\nPlatz der Republik 1"));
+    }
+
+    @Test
+    public void testCleanNewYork() {
+        Assert.assertEquals("New York, New York", FormatterSupport.clean("New York, New York"));
+    }
+
+    @Test
+    public void testRenderTemplateValueWithBraces() {
+        Map<String, String> components = new HashMap<String, String>();
+        components.put("road", "{{");
+        // The value and the following unknown tag form one tag, which is removed as a whole
+        Assert.assertEquals("", FormatterSupport.renderTemplate(components, "{{{road}}}{{{x}}}"));
+    }
+
+    @Test
+    public void testFreezeNullValue() {
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("alias", null);
+        Map<String, String> frozen = FormatterSupport.freeze(map);
+        Assert.assertTrue(frozen.containsKey("alias"));
+        Assert.assertNull(frozen.get("alias"));
+    }
+}
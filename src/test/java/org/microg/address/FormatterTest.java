@@ -49,4 +49,65 @@ public class FormatterTest {
     public void testGuessTypeCandidatesSpecialBuilding() throws IOException {
         Assert.assertTrue(new Formatter().guessTypeCandidates(getTourEiffel3eEtageComponents()).contains("viewpoint"));
     }
+
+    @Test
+    public void testFormatAddressWithoutCountryCode() throws IOException {
+        Map<String, String> components = getTourEiffel3eEtageComponents();
+        components.remove("country_code");
+        // Without state, as fixing the country still expects a country_code then
+        components.remove("state");
+        Assert.assertTrue(new Formatter().formatAddress(components).contains("Paris"));
+    }
+
+    @Test
+    public void testFormatAddressesMatchesFormatAddress() throws IOException {
+        Formatter formatter = new Formatter();
+        // Interleaved countries, so grouping reorders rows
+        String[] countryCodes = new String[]{"fr", "de", "fr", null, "de"};
+        String[] cities = new String[]{"Paris", "Berlin", "Lyon", null, "Hamburg"};
+        Map<String, String> eiffel = getTourEiffel3eEtageComponents();
+        Map<String, String[]> columns = new HashMap<String, String[]>();
+        for (String name : eiffel.keySet()) {
+            String[] column = new String[countryCodes.length];
+            for (int row = 0; row < column.length; row++) {
+                if (countryCodes[row] != null) column[row] = eiffel.get(name);
+            }
+            columns.put(name, column);
+        }
+        columns.put("country_code", countryCodes);
+        columns.put("city", cities);
+        columns.put("suburb", null);
+
+        String[] out = new String[countryCodes.length];
+        formatter.formatAddresses(columns, out);
+
+        for (int row = 0; row < out.length; row++) {
+            Map<String, String> components = new HashMap<String, String>();
+            for (String name : columns.keySet()) {
+                String[] column = columns.get(name);
+                if (column != null && column[row] != null) components.put(name, column[row]);
+            }
+            Assert.assertEquals("row " + row, formatter.formatAddress(components), out[row]);
+        }
+        Assert.assertTrue(out[1].contains("Berlin"));
+        Assert.assertTrue(out[2].contains("Lyon"));
+    }
+
+    @Test
+    public void testFormatAddressesFailingRow() throws IOException {
+        Map<String, String[]> columns = new HashMap<String, String[]>();
+        // The second row has country and state but no country_code. This relies on fixCountry
+        // throwing a NullPointerException for such addresses; once that is fixed, this test
+        // needs another way to make a row fail.
+        columns.put("country_code", new String[]{"fr", null, "fr"});
+        columns.put("country", new String[]{"France", "Germany", "France"});
+        columns.put("state", new String[]{"Ile-de-France", "Berlin", "Ile-de-France"});
+        columns.put("city", new String[]{"Paris", null, "Lyon"});
+
+        String[] out = new String[3];
+        new Formatter().formatAddresses(columns, out);
+        Assert.assertTrue(out[0].contains("Paris"));
+        Assert.assertNull(out[1]);
+        Assert.assertTrue(out[2].contains("Lyon"));
+    }
 }